@@ -1,2 +1,4 @@
 #!/bin/bash
 gnuplot -e "var='coarse'" speedup_plot_script
+gnuplot -e "var='strong'" speedup_plot_script
+gnuplot -e "var='weak'" speedup_plot_script
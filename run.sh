@@ -7,17 +7,25 @@ echo "Name of input file in ./io-files"
 read input_filename
 echo "Name of output file in ./io-files"
 read output_filename
+echo "Scheduler (forkjoin/static/stream/virtual, blank for forkjoin)"
+read scheduler
 echo "Perform benchmarking tests? (y/n)"
 read b
 
+OPTS=""
+if [ -n "$scheduler" ]
+then
+	OPTS="-s $scheduler"
+fi
+
 if [ $b == "y" ]
 then
 	echo "Running TerrainClassify.main()"
-	java -cp ./bin TerrainClassify $FDIR$input_filename $FDIR$output_filename -b
+	java -cp ./bin TerrainClassify $FDIR$input_filename $FDIR$output_filename -b $OPTS
 elif [ $b == "n" ]
 then
 	echo "Running TerrainClassify.main()"
-	java -cp ./bin TerrainClassify $FDIR$input_filename $FDIR$output_filename
+	java -cp ./bin TerrainClassify $FDIR$input_filename $FDIR$output_filename $OPTS
 else
 	echo "Invalid input. Please rerun."
 fi
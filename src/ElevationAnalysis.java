@@ -215,6 +215,43 @@ public class ElevationAnalysis extends RecursiveTask<Integer> {
 		SequentialCutoff = cutoff;
 	}
 	
+	/**
+	 * <p>Gets the sequential cutoff value for the class. Schedulers 
+	 * other than the recursive one use it as their tile size.</p>
+	 * 
+	 * @return Current sequential cutoff value
+	 */
+	public static int getSequentialCutoff() {
+		return SequentialCutoff;
+	}
+	
+	/**
+	 * <p>Gets the number of points in the current map.</p>
+	 * 
+	 * @return Length of the 1D map array
+	 */
+	public static int getMapLength() {
+		return map.length;
+	}
+	
+	/**
+	 * <p>Gets the number of columns of the current map.</p>
+	 * 
+	 * @return Number of columns of the data grid
+	 */
+	public static int getCols() {
+		return cols;
+	}
+	
+	/**
+	 * <p>Releases the map so it can be garbage collected, eg before 
+	 * making a new big grid. No instance may be used until a new map 
+	 * is set.</p>
+	 */
+	public static void clearMap() {
+		map = null;
+	}
+	
 	/**
 	 * <p>Clears flags on all points in the map.</p> 
 	 */
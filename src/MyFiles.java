@@ -69,6 +69,22 @@ public class MyFiles {
 		}
 	}
 	
+	/**
+	 * <p>Generates terrain data in memory instead of reading it from a file. 
+	 * Stores dimensions of the grid to <code>dataDims</code> field, the same as 
+	 * <code>extractTerrainData()</code>.</p>
+	 * 
+	 * @param rows Number of rows
+	 * @param cols Number of columns
+	 * @param gen Generator to use
+	 * @return <code>PointElevation</code> array with generated data
+	 */
+	public static PointElevation[] generateTerrainData(int rows, int cols, TerrainGenerator gen) {
+		dataDims[0] = rows;
+		dataDims[1] = cols;
+		return gen.generate(rows, cols);
+	}
+	
 	/**
 	 * <p>Writes basin data to output file with the given name.</p>
 	 * <p>Note that if the file already exists, it will be overwritten.</p>
@@ -178,6 +194,166 @@ public class MyFiles {
 		}
 	}
 	
+	/**
+	 * <p>Writes scheduler comparison data to a file, for humans. One
+	 * column of times per {@link Scheduler}.</p>
+	 * 
+	 * @param data Speed data, one row of times per scheduler
+	 * @param schedulers Schedulers the rows of <code>data</code> belong to
+	 * @param threads Number of worker threads the schedulers used
+	 * @param usePathPrefix Whether or not to append prefix "io-files/" to filenames
+	 */
+	public static void compileSchedulerData(double[][] data, Scheduler[] schedulers, int threads, boolean usePathPrefix) {
+		String pp; // path prefix
+		if (usePathPrefix) {pp="io-files/";}
+		else {pp="";}
+		
+		String dataSize = dataDims[0]+"x"+dataDims[1]; // dimensions of data, <row>x<col>
+		String filename = pp + dataSize + "_benchmarking_schedulers.txt";
+		
+		try {
+			File f = new File(filename);
+			if (f.createNewFile()) {}
+			else {clearFile(f);}
+			FileWriter w = new FileWriter(f, true);
+			
+			// write headers
+			w.write("# Scheduler Speed Test Data\n# Units: ms\n# Data size: "+dataSize+"\n# Threads: "+threads+"\n");
+			if (!Scheduler.hasVirtualThreads()) {
+				w.write("# Note: no virtual threads on this JVM, virtual ran on the fixed thread pool\n");
+			}
+			w.write("# format:");
+			for (int s=0; s<schedulers.length; s++) {w.write(String.format(" %-20s",schedulers[s].label()));}
+			w.write("\n");
+			
+			// write summary
+			w.write("# min: ");
+			for (int s=0; s<schedulers.length; s++) {w.write(String.format(" %-20s",trunc(Stats.min(data[s]),8)));}
+			w.write("\n# max: ");
+			for (int s=0; s<schedulers.length; s++) {w.write(String.format(" %-20s",trunc(Stats.max(data[s]),8)));}
+			w.write("\n# mean:");
+			for (int s=0; s<schedulers.length; s++) {w.write(String.format(" %-20s",trunc(Stats.mean(data[s]),8)));}
+			w.write("\n");
+			
+			// write data
+			for (int i=0; i<data[0].length; i++) {
+				for (int s=0; s<schedulers.length; s++) {w.write(String.format("%-21s",trunc(data[s][i],8)));}
+				w.write("\n");
+			}
+			w.close();
+		}
+		catch(IOException e) { // very general exception handling
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * <p>Writes scaling sweep data to files (one file for humans, two for gnuplot, 
+	 * in the same form as <code>compileTestData()</code> so that 
+	 * <code>misc/speedup_plot_script</code> can plot them).</p>
+	 * <p>Speedup is measured against the mean time on 1 thread. For strong 
+	 * scaling (same grid for every thread count) it is <code>T1/Tp</code>. For 
+	 * weak scaling (grid grows with the thread count) it is the scaled speedup 
+	 * <code>p*T1/Tp</code>. Either way efficiency is speedup/p, and 1 is perfect.</p>
+	 * <p>The means file has the columns: threads, mean speedup, lower and upper 
+	 * 95% confidence bounds of the speedup, efficiency. The interval is worked out 
+	 * on the log of the speedup, <code>ln(T1) - ln(Tp)</code>, combining the 
+	 * relative intervals of the two mean times, so the bounds are always positive. 
+	 * The 1 thread row is the reference, so its speedup is exactly 1 with no interval. 
+	 * A last column has the speedup of the median times, which outliers don't move.</p>
+	 * <p>Like <code>compileTestData()</code> files, the filenames get "_&lt;scheduler&gt;" 
+	 * added to the type for schedulers other than forkjoin, eg 
+	 * <code>256x256_plot_weak_static.txt</code>.</p>
+	 * 
+	 * @param times Speed data, one row of times per thread count. The first row must be for 1 thread.
+	 * @param threads Thread counts the rows of <code>times</code> belong to
+	 * @param grids Grid sizes the rows of <code>times</code> belong to, as <code>&lt;row&gt;x&lt;col&gt;</code>
+	 * @param type Type of scaling ("strong" or "weak")
+	 * @param label Data size label for the filenames (for weak scaling, the size on 1 thread)
+	 * @param scheduler Scheduler that was timed
+	 * @param usePathPrefix Whether or not to append prefix "io-files/" to filenames
+	 */
+	public static void compileScalingData(double[][] times, int[] threads, String[] grids, String type, String label, Scheduler scheduler, boolean usePathPrefix) {
+		String pp; // path prefix
+		if (usePathPrefix) {pp="io-files/";}
+		else {pp="";}
+		
+		String step = type; // type, plus scheduler if not forkjoin
+		if (scheduler != Scheduler.FORKJOIN) {step = type + "_" + scheduler;}
+		
+		String filename = pp + label + "_benchmarking_" + step + ".txt";
+		String plot_filename = pp + label + "_plot_" + step + ".txt";
+		String plot_m_filename = pp + label + "_plot_means_" + step + ".txt";
+		
+		try {
+			// files
+			File f = new File(filename);
+			File plot_f = new File(plot_filename);
+			File plot_m_f = new File(plot_m_filename);
+			
+			// if files don't exist, create them
+			// if files do exist, clear them
+			if (f.createNewFile()) {}
+			else {clearFile(f);}
+			if (plot_f.createNewFile()) {}
+			else {clearFile(plot_f);}
+			if (plot_m_f.createNewFile()) {}
+			else {clearFile(plot_m_f);}
+			
+			// create writers
+			FileWriter w = new FileWriter(f, true);
+			FileWriter plot_w = new FileWriter(plot_f, true);
+			FileWriter plot_m_w = new FileWriter(plot_m_f, true);
+			
+			// write headers
+			w.write("# "+type.substring(0,1).toUpperCase()+type.substring(1)+" Scaling Data\n# Units: ms\n# Scheduler: "+scheduler.label()+
+					"\n# Runs per thread count: "+times[0].length+"\n# Intervals: 95% confidence\n");
+			if (scheduler == Scheduler.VIRTUAL && Scheduler.hasVirtualThreads()) {
+				w.write("# Warning: thread counts don't change the carrier threads of virtual threads, "+
+						"so this is not real scaling data unless -Djdk.virtualThreadScheduler.parallelism was set to match\n");
+			}
+			w.write(String.format("# %-8s%-12s%-10s%-10s%-10s%-10s%-10s%-10s%-10s%-10s%-10s%-10s\n",
+					"Threads","Grid","Mean","+-","Median","Speedup","Low","High","Effic.","Low","High","MedSpeedup"));
+			plot_w.write("# NumThreads Speedup \n");
+			plot_m_w.write("# NumThreads SpeedupMean SpeedupLow SpeedupHigh Efficiency SpeedupMedian \n");
+			
+			double median1 = Stats.median(times[0]);
+			double mean1 = Stats.mean(times[0]);
+			double relCi1 = Stats.ci95(times[0])/mean1; // relative interval of 1 thread time
+			
+			// write data
+			for (int t=0; t<times.length; t++) {
+				double scale = type.equals("weak") ? threads[t] : 1; // scaled speedup for weak
+				double mean = Stats.mean(times[t]);
+				double ci = Stats.ci95(times[t]);
+				double speedup = scale*mean1/mean;
+				double median = Stats.median(times[t]);
+				double medSpeedup = scale*median1/median;
+				
+				// half width of the interval of ln(speedup), none for the reference row
+				double logCi = 0;
+				if (t>0) {logCi = Math.sqrt(relCi1*relCi1 + (ci/mean)*(ci/mean));}
+				double low = speedup*Math.exp(-logCi);
+				double high = speedup*Math.exp(logCi);
+				
+				w.write(String.format("  %-8s%-12s%-10s%-10s%-10s%-10s%-10s%-10s%-10s%-10s%-10s%-10s\n",
+						threads[t], grids[t], trunc(mean,8), trunc(ci,8), trunc(median,8), trunc(speedup,8), trunc(low,8), trunc(high,8),
+						trunc(speedup/threads[t],8), trunc(low/threads[t],8), trunc(high/threads[t],8), trunc(medSpeedup,8)));
+				plot_m_w.write(String.format("%s %s %s %s %s %s\n", threads[t], speedup, low, high, speedup/threads[t], medSpeedup));
+				for (int i=0; i<times[t].length; i++) {
+					plot_w.write(String.format("%s %s\n", threads[t], scale*mean1/times[t][i]));
+				}
+			}
+			// close writer
+			w.close();
+			plot_w.close();
+			plot_m_w.close();
+		}
+		catch(IOException e) { // very general exception handling
+			e.printStackTrace();
+		}
+	}
+	
 	/**
 	 * <p>Clear file by writing empty string to it.</p>
 	 * @param f File to clear
@@ -216,6 +392,9 @@ public class MyFiles {
 	/**
 	 * <p>Calculates the number of threads that will be created
 	 * for a given sequential cutoff and length of data array.</p>
+	 * <p>Really this is the number of leaf tasks; how many run at once 
+	 * depends on the pool's parallelism (see <code>compileScalingData()</code> 
+	 * for results against real thread counts).</p>
 	 * 
 	 * @param length Length of data array, ie number of data points.
 	 * @param cutoff Sequential cutoff value used.
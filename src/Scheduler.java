@@ -0,0 +1,256 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Strategies for running {@link ElevationAnalysis} in parallel. Each
+ * strategy splits the map differently and hands the pieces to a different
+ * kind of executor, so that they can be compared by the benchmarking mode
+ * of {@link TerrainClassify}.</p>
+ *
+ * <ul>
+ * <li><code>forkjoin</code>: the original recursive bisection on a
+ * <code>ForkJoinPool</code>, split down to the sequential cutoff.</li>
+ * <li><code>static</code>: the map is cut into one band of whole rows per
+ * thread up front, and the bands run on a fixed thread pool. No work stealing.</li>
+ * <li><code>stream</code>: a parallel <code>IntStream.range</code> over tiles
+ * of sequential cutoff size, run inside the <code>ForkJoinPool</code> so it
+ * uses the same parallelism as <code>forkjoin</code>.</li>
+ * <li><code>virtual</code>: one virtual thread per tile of sequential cutoff
+ * size.</li>
+ * </ul>
+ *
+ * <p>All strategies share the static pools of this class. Their size is set
+ * with <code>setParallelism()</code> and defaults to the number of available
+ * processors.</p>
+ *
+ * @author agent
+ *
+ */
+public enum Scheduler {
+
+	FORKJOIN("forkjoin") {
+		@Override
+		public int invoke() {
+			return fjPool.invoke(new ElevationAnalysis());
+		}
+	},
+
+	STATIC("static") {
+		@Override
+		public int invoke() {
+			int rows = ElevationAnalysis.getMapLength()/ElevationAnalysis.getCols();
+			int bands = Math.min(parallelism, rows);
+			List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>(bands);
+			for (int b=0; b<bands; b++) {
+				// band boundaries are on whole rows
+				int ilo = (int)((long)rows*b/bands)*ElevationAnalysis.getCols();
+				int ihi = (int)((long)rows*(b+1)/bands)*ElevationAnalysis.getCols();
+				tasks.add(() -> new ElevationAnalysis(ilo, ihi).findBasins());
+			}
+			return sumAll(fixedPool, tasks);
+		}
+	},
+
+	STREAM("stream") {
+		@Override
+		public int invoke() {
+			int tile = ElevationAnalysis.getSequentialCutoff();
+			int length = ElevationAnalysis.getMapLength();
+			int tiles = (length+tile-1)/tile;
+			// submitting from inside fjPool makes the stream use fjPool, not the common pool
+			return fjPool.submit(() -> IntStream.range(0, tiles).parallel()
+					.map(t -> new ElevationAnalysis(t*tile, Math.min((t+1)*tile, length)).findBasins())
+					.sum()).join();
+		}
+	},
+
+	VIRTUAL("virtual") {
+		@Override
+		public int invoke() {
+			int tile = ElevationAnalysis.getSequentialCutoff();
+			int length = ElevationAnalysis.getMapLength();
+			List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>((length+tile-1)/tile);
+			for (int ilo=0; ilo<length; ilo+=tile) {
+				int lo = ilo;
+				int hi = Math.min(ilo+tile, length);
+				tasks.add(() -> new ElevationAnalysis(lo, hi).findBasins());
+			}
+			if (virtualPool == null) {
+				return sumAll(fixedPool, tasks); // no virtual threads on this JVM
+			}
+			return sumAll(virtualPool, tasks);
+		}
+	};
+
+	/**
+	 * <p>Number of worker threads used by the <code>ForkJoinPool</code> and
+	 * the fixed thread pool.</p>
+	 */
+	private static int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * <p>Pool used by <code>forkjoin</code> and <code>stream</code>.</p>
+	 */
+	private static ForkJoinPool fjPool = new ForkJoinPool(parallelism);
+
+	/**
+	 * <p>Pool used by <code>static</code>.</p>
+	 */
+	private static ExecutorService fixedPool = Executors.newFixedThreadPool(parallelism, daemonFactory());
+
+	/**
+	 * <p>Executor used by <code>virtual</code>. Starts a new virtual thread
+	 * for every task.</p>
+	 * <p>Virtual threads only exist from Java 21, and this code is meant to
+	 * compile on older JDKs too, so the executor is looked up by reflection.
+	 * If it isn't there this is <code>null</code> and <code>virtual</code>
+	 * runs its tiles on the fixed thread pool instead (one platform thread
+	 * per tile would mean hundreds of thousands of threads at small cutoffs).</p>
+	 */
+	private static ExecutorService virtualPool = virtualExecutor();
+
+	/**
+	 * <p>Name used to select the scheduler from the command line.</p>
+	 */
+	private final String name;
+
+	/**
+	 * <p>Creates a scheduler constant with the given command line name.</p>
+	 * @param name Command line name
+	 */
+	Scheduler(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * <p>Finds basins in the current map of {@link ElevationAnalysis}
+	 * using this scheduling strategy.</p>
+	 *
+	 * @return The number of basins in the data
+	 */
+	public abstract int invoke();
+
+	/**
+	 * <p>Gets the command line name of the scheduler.</p>
+	 * @return Name of the scheduler
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * <p>Gets a label for the scheduler in benchmarking data. This is the 
+	 * name, except for <code>virtual</code> on a JVM without virtual threads, 
+	 * which is labelled "virtual(fixed-pool)" since that's what it runs on.</p>
+	 * @return Label of the scheduler
+	 */
+	public String label() {
+		if (this == VIRTUAL && !hasVirtualThreads()) {
+			return name+"(fixed-pool)";
+		}
+		return name;
+	}
+
+	/**
+	 * <p>Finds the scheduler with the given command line name.</p>
+	 *
+	 * @param name Command line name, eg "forkjoin"
+	 * @return The matching scheduler, or <code>null</code> if there is none
+	 */
+	public static Scheduler fromName(String name) {
+		for (Scheduler s : values()) {
+			if (s.name.equals(name)) {
+				return s;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * <p>Gets the number of worker threads the pools are using.</p>
+	 * @return Parallelism
+	 */
+	public static int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * <p>Replaces the <code>ForkJoinPool</code> and fixed thread pool with
+	 * new ones of the given size. The old pools are shut down.</p>
+	 * <p>Note: should not be called while a scheduler is running.</p>
+	 *
+	 * @param threads Number of worker threads
+	 */
+	public static void setParallelism(int threads) {
+		if (threads == parallelism) {return;}
+		fjPool.shutdown();
+		fixedPool.shutdown();
+		parallelism = threads;
+		fjPool = new ForkJoinPool(parallelism);
+		fixedPool = Executors.newFixedThreadPool(parallelism, daemonFactory());
+	}
+
+	/**
+	 * <p>Runs all tasks on the given executor and adds up their results.</p>
+	 *
+	 * @param ex Executor to run the tasks on
+	 * @param tasks Tasks that each return a basin count
+	 * @return Sum of the basin counts
+	 */
+	private static int sumAll(ExecutorService ex, List<Callable<Integer>> tasks) {
+		try {
+			int sum = 0;
+			for (Future<Integer> f : ex.invokeAll(tasks)) {
+				sum += f.get();
+			}
+			return sum;
+		}
+		catch (InterruptedException | ExecutionException e) { // very general exception handling
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * <p>Thread factory for daemon threads, so that the pools don't stop
+	 * the program from exiting when <code>main()</code> returns.</p>
+	 * @return Daemon thread factory
+	 */
+	private static ThreadFactory daemonFactory() {
+		return r -> {
+			Thread t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/**
+	 * <p>Checks whether <code>virtual</code> really uses virtual threads 
+	 * on this JVM (see <code>virtualPool</code>).</p>
+	 * @return <code>true</code> if virtual threads are supported
+	 */
+	public static boolean hasVirtualThreads() {
+		return virtualPool != null;
+	}
+
+	/**
+	 * <p>Creates the executor for <code>virtual</code> (see <code>virtualPool</code>).</p>
+	 * @return Virtual thread per task executor, or <code>null</code> if not supported
+	 */
+	private static ExecutorService virtualExecutor() {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
@@ -6,6 +6,15 @@
  *
  */
 public class Stats {
+	/**
+	 * <p>Two-sided 95% critical values of Student's t for 1 to 30 
+	 * degrees of freedom.</p>
+	 */
+	private static final double[] T95 = {
+			12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+			2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+			2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+	
 	/**
 	 * <p>Finds highest valued element in array.</p>
 	 * @param arr Array
@@ -58,4 +67,55 @@ public class Stats {
 		return sum(arr)/arr.length;
 	}
 	
-}
\ No newline at end of file
+	/**
+	 * <p>Finds the median of elements of array. The array itself is not changed.</p>
+	 * @param arr Array
+	 * @return median
+	 */
+	public static double median(double[] arr) {
+		double[] sorted = arr.clone();
+		java.util.Arrays.sort(sorted);
+		int m = sorted.length/2;
+		if (sorted.length%2 == 1) {return sorted[m];}
+		return (sorted[m-1]+sorted[m])/2;
+	}
+	
+	/**
+	 * <p>Calculates sample standard deviation of elements of array.</p>
+	 * @param arr Array
+	 * @return standard deviation, or <code>NaN</code> if there are fewer than 2 elements
+	 */
+	public static double stdDev(double[] arr) {
+		if (arr.length < 2) {return Double.NaN;}
+		double mean = mean(arr);
+		double sumSq = 0;
+		for (int i=0; i<arr.length; i++) {
+			sumSq += (arr[i]-mean)*(arr[i]-mean);
+		}
+		return Math.sqrt(sumSq/(arr.length-1));
+	}
+	
+	/**
+	 * <p>Calculates half the width of the 95% confidence interval of 
+	 * the mean of the array (Student's t), ie the interval is 
+	 * <code>mean &plusmn; ci95</code>.</p>
+	 * @param arr Array
+	 * @return confidence interval half width, or <code>NaN</code> if there are fewer than 2 elements
+	 */
+	public static double ci95(double[] arr) {
+		if (arr.length < 2) {return Double.NaN;}
+		return tCritical95(arr.length-1)*stdDev(arr)/Math.sqrt(arr.length);
+	}
+	
+	/**
+	 * <p>Gets the two-sided 95% critical value of Student's t. Above 30 
+	 * degrees of freedom the normal value 1.96 is used.</p>
+	 * @param df Degrees of freedom
+	 * @return critical value
+	 */
+	private static double tCritical95(int df) {
+		if (df > T95.length) {return 1.96;}
+		return T95[df-1];
+	}
+	
+}
@@ -1,5 +1,3 @@
-import java.util.concurrent.ForkJoinPool;
-
 /**
  * <p>Contains <code>main</code> method to interface with user and 
  * implement functionality of {@link ElevationAnalysis} class.</p>
@@ -15,9 +13,10 @@ public class TerrainClassify {
 	private static ElevationAnalysis analyze;
 	
 	/**
-	 * <p>A <code>ForkJoinPool</code> object to handle threads.</p>
+	 * <p>The {@link Scheduler} used to find basins in parallel.
+	 * Set with the "-s" option, <code>forkjoin</code> by default.</p>
 	 */
-	private static ForkJoinPool fjPool = new ForkJoinPool();
+	private static Scheduler scheduler = Scheduler.FORKJOIN;
 	
 	/**
 	 * <p>Start time of a benchmark test. Value set by <code>tick()</code>
@@ -35,30 +34,113 @@ public class TerrainClassify {
 	 * given, benchmarking will be performed, otherwise benchmarking will be 
 	 * skipped and all the method will do is identify the basins (in parallel)
 	 * and write to the output file.</p>
+	 * <p>Instead of a path, the first argument may be "gen:&lt;rows&gt;x&lt;cols&gt;", 
+	 * in which case a grid of that size is made by {@link TerrainGenerator} in 
+	 * memory. Its settings can be given with "-seed", "-r" and "-d", as for 
+	 * <code>TerrainGenerator.main()</code>; they also apply to "-sweep".</p>
+	 * <p>Further options may follow the file paths, in any order:<br>
+	 * "-s &lt;name&gt;" selects the {@link Scheduler} (forkjoin, static, stream
+	 * or virtual),<br>
+	 * "-t &lt;threads&gt;" sets the number of worker threads it uses.<br>
+	 * With "-b", the cutoff tests use the selected scheduler (and are skipped for 
+	 * static, which has no cutoff), and all schedulers are then compared with each 
+	 * other at the sequential cutoff the tests started with.</p>
+	 * <p>If the first argument is "-sweep", no files are read or written except 
+	 * the results of a scaling sweep (see <code>sweep()</code>). "-s" and "-t" can 
+	 * still be given, "-t" being the highest thread count to test, and 
+	 * "-sizes &lt;n,n,...&gt;" sets the grid sizes (default 256,512,1024).</p>
 	 * 
 	 * @param args
 	 */
 	public static void main(String[] args) {
+		boolean sweep = args[0].equals("-sweep");
+		
+		// options
+		boolean benchmark = false;
+		int[] sizes = {256, 512, 1024};
+		TerrainGenerator defaults = new TerrainGenerator();
+		long seed = defaults.getSeed();
+		float roughness = defaults.getRoughness();
+		double density = defaults.getBasinDensity();
+		for (int a=(sweep ? 1 : 2); a<args.length; a++) {
+			if (args[a].equals("-b")) {
+				benchmark = true;
+			}
+			else if (args[a].equals("-s")) {
+				scheduler = Scheduler.fromName(args[++a]);
+				if (scheduler == null) {
+					System.out.println("Unknown scheduler "+args[a]+", valid names are "+java.util.Arrays.toString(Scheduler.values()));
+					System.exit(1);
+				}
+			}
+			else if (args[a].equals("-t")) {
+				Scheduler.setParallelism(Integer.parseInt(args[++a]));
+			}
+			else if (args[a].equals("-seed")) {
+				seed = Long.parseLong(args[++a]);
+			}
+			else if (args[a].equals("-r")) {
+				roughness = Float.parseFloat(args[++a]);
+			}
+			else if (args[a].equals("-d")) {
+				density = Double.parseDouble(args[++a]);
+			}
+			else if (args[a].equals("-sizes")) {
+				String[] list = args[++a].split(",");
+				sizes = new int[list.length];
+				for (int i=0; i<list.length; i++) {sizes[i] = Integer.parseInt(list[i]);}
+			}
+		}
+		if ((benchmark || scheduler == Scheduler.VIRTUAL) && !Scheduler.hasVirtualThreads()) {
+			System.out.println("Note: no virtual threads on this JVM, 'virtual' uses the fixed thread pool");
+		}
+		
+		TerrainGenerator gen = new TerrainGenerator(seed, roughness, density);
+		
+		if (sweep) {
+			sweep(sizes, Scheduler.getParallelism(), gen);
+			return;
+		}
+		
 		// IO files
 		String infile = args[0];
 		String outfile = args[1];
 		
-		analyze = new ElevationAnalysis(MyFiles.extractTerrainData(infile), MyFiles.getDataDims()[1]);
+		PointElevation[] data;
+		if (infile.startsWith("gen:")) {
+			// synthetic terrain, "gen:<rows>x<cols>"
+			String[] dims = infile.substring(4).split("x");
+			data = MyFiles.generateTerrainData(Integer.parseInt(dims[0]), Integer.parseInt(dims[1]), gen);
+		}
+		else {
+			data = MyFiles.extractTerrainData(infile);
+		}
+		analyze = new ElevationAnalysis(data, MyFiles.getDataDims()[1]);
 		
-		if (args.length>2) {
-			if (args[2].equals("-b")) {
-				// variables & storage arrays for speed tests:
-				int n = 20; // number of times to run speed tests
-				int p = 7; // number of sequential cutoffs to test at
-				double[][] seqTimes = new double[p][n];
-				double[][] parTimes = new double[p][n];
-				int[] cutoffs = new int[p];
-				
+		if (benchmark) {
+			// variables & storage arrays for speed tests:
+			int n = 20; // number of times to run speed tests
+			int p = 7; // number of sequential cutoffs to test at
+			int cutoff = ElevationAnalysis.getSequentialCutoff(); // restored after the cutoff tests
+			double[][] seqTimes = new double[p][n];
+			double[][] parTimes = new double[p][n];
+			int[] cutoffs = new int[p];
+			
+			// static ignores the sequential cutoff (one band per thread), so the cutoff
+			// tests would just repeat the same configuration
+			if (scheduler == Scheduler.STATIC) {
+				System.out.println("Skipping cutoff tests, static does not use the sequential cutoff");
+			}
+			else {
+				// cutoff tests of schedulers other than forkjoin go to their own files
+				String label = "";
+				if (scheduler != Scheduler.FORKJOIN) {label = "_"+scheduler;}
+			
 				// 'warm-up'
 				for (int i=0; i<100; i++) { // num loops based on experimentation
-					fjPool.invoke(new ElevationAnalysis());
+					scheduler.invoke();
 				}
-				
+			
 				/*
 				 * Test 20 times for each sequential cutoff (~ number of threads)
 				 * 
@@ -81,13 +163,13 @@ public class TerrainClassify {
 						seqTimes[c][i] = tock();
 						ElevationAnalysis.clearFlags();
 						tick();
-						fjPool.invoke(new ElevationAnalysis()); // parallel
+						scheduler.invoke(); // parallel
 						parTimes[c][i] = tock();
 					}
 				}
 				System.out.println("Writing to file...");
-				MyFiles.compileTestData(seqTimes, parTimes, cutoffs, "coarse", true);
-				
+				MyFiles.compileTestData(seqTimes, parTimes, cutoffs, "coarse"+label, true);
+			
 				// fine
 				System.out.println("Doing benchamrk test fine...");
 				for (int c=0; c<p; c++) { // increment cutoff p times
@@ -101,24 +183,161 @@ public class TerrainClassify {
 						seqTimes[c][i] = tock();
 						ElevationAnalysis.clearFlags();
 						tick();
-						fjPool.invoke(new ElevationAnalysis()); // parallel
+						scheduler.invoke(); // parallel
 						parTimes[c][i] = tock();
 					}
 				}
 				System.out.println("Writing to file...");
-				MyFiles.compileTestData(seqTimes, parTimes, cutoffs, "fine", true);
-				
-				ElevationAnalysis.clearFlags();
+				MyFiles.compileTestData(seqTimes, parTimes, cutoffs, "fine"+label, true);
 			}
+			
+			// schedulers
+			System.out.println("Doing benchmark test schedulers...");
+			Scheduler[] schedulers = Scheduler.values();
+			double[][] schedTimes = new double[schedulers.length][n];
+			ElevationAnalysis.setSequentialCutoff(cutoff);
+			for (int s=0; s<schedulers.length; s++) {
+				for (int i=0; i<100; i++) { // warm-up, as above
+					schedulers[s].invoke();
+				}
+				for (int i=0; i<n; i++) { // run n tests
+					System.gc(); // minimize chances of gc running in timing blocks
+					ElevationAnalysis.clearFlags();
+					tick();
+					schedulers[s].invoke();
+					schedTimes[s][i] = tock();
+				}
+			}
+			System.out.println("Writing to file...");
+			MyFiles.compileSchedulerData(schedTimes, schedulers, Scheduler.getParallelism(), true);
+			
+			ElevationAnalysis.clearFlags();
 		}
 		
 		// Produce list of basin coords
 		System.out.println("Finding basins...");
-		int num_basins = fjPool.invoke(new ElevationAnalysis());
+		int num_basins = scheduler.invoke();
 		System.out.println("Writing to file...");
 		MyFiles.compileTerrainData(num_basins, ElevationAnalysis.listBasins(num_basins), outfile);
 	}
 	
+	/**
+	 * <p>Measures how the selected scheduler scales with the number of 
+	 * threads, on grids made by {@link TerrainGenerator}. Unlike the cutoff 
+	 * tests of "-b", this changes the real number of worker threads (with 
+	 * {@link Scheduler#setParallelism(int)}), from 1 up to <code>maxThreads</code> 
+	 * in powers of 2 (and <code>maxThreads</code> itself).</p>
+	 * <p>Strong scaling: for each size n, the same n x n grid on every thread count.<br>
+	 * Weak scaling: for each size n, a (p*n) x n grid on p threads, so each 
+	 * thread always has n*n points.</p>
+	 * <p>Results are written by {@link MyFiles#compileScalingData}, labelled 
+	 * with the n x n size.</p>
+	 * <p>Timing: before anything is timed, the scheduler is warmed up untimed 
+	 * on the first grid at every thread count, otherwise whichever run comes 
+	 * first in the JVM is many times slower and skews every speedup measured 
+	 * against it. Thread counts are then timed from most to fewest, so the 
+	 * 1 thread reference isn't always the first measurement of a grid.</p>
+	 * <p>All sizes are checked before starting, since the weak scaling grids 
+	 * must fit in one Java array (fewer than 2^31 points).</p>
+	 * 
+	 * @param sizes Grid sizes to test
+	 * @param maxThreads Highest number of threads to test
+	 * @param gen Generator for the grids
+	 */
+	private static void sweep(int[] sizes, int maxThreads, TerrainGenerator gen) {
+		int n = 20; // number of times to run speed tests
+		
+		// thread counts: 1, 2, 4, ..., maxThreads
+		int k = 1;
+		while ((1<<k) < maxThreads) {k++;}
+		int[] threads = new int[k+1];
+		for (int t=0; t<k; t++) {threads[t] = 1<<t;}
+		threads[k] = maxThreads;
+		if (maxThreads == 1) {threads = new int[] {1};}
+		
+		// check sizes before spending any time: the biggest weak grid is (maxThreads*n) x n
+		for (int size : sizes) {
+			if ((long)size*size*maxThreads > Integer.MAX_VALUE) {
+				System.out.println("Size "+size+" is too big for "+maxThreads+" threads: the weak scaling grid "+
+						((long)maxThreads*size)+"x"+size+" has more than "+Integer.MAX_VALUE+" points. "+
+						"Largest size for "+maxThreads+" threads is "+(int)Math.sqrt((double)Integer.MAX_VALUE/maxThreads)+".");
+				System.exit(1);
+			}
+		}
+		if (scheduler == Scheduler.VIRTUAL && Scheduler.hasVirtualThreads()) {
+			System.out.println("Warning: thread counts don't change the carrier threads of virtual threads, "+
+					"set -Djdk.virtualThreadScheduler.parallelism for real scaling data");
+		}
+		
+		double[][] times = new double[threads.length][n];
+		String[] grids = new String[threads.length];
+		boolean warm = false;
+		for (int size : sizes) {
+			String label = size+"x"+size;
+			
+			// strong
+			System.out.println("Doing strong scaling sweep "+label+"...");
+			ElevationAnalysis.clearMap(); // let the previous grid be collected before making the next one
+			analyze = new ElevationAnalysis(MyFiles.generateTerrainData(size, size, gen), size);
+			if (!warm) {
+				// untimed pass over every thread count, see above
+				for (int t=0; t<threads.length; t++) {
+					Scheduler.setParallelism(threads[t]);
+					warmUp();
+				}
+				warm = true;
+			}
+			for (int t=threads.length-1; t>=0; t--) { // most threads first
+				Scheduler.setParallelism(threads[t]);
+				grids[t] = label;
+				timeScheduler(times[t]);
+			}
+			System.out.println("Writing to file...");
+			MyFiles.compileScalingData(times, threads, grids, "strong", label, scheduler, true);
+			
+			// weak
+			System.out.println("Doing weak scaling sweep "+label+"...");
+			for (int t=threads.length-1; t>=0; t--) { // most threads (biggest grid) first
+				ElevationAnalysis.clearMap();
+				analyze = new ElevationAnalysis(MyFiles.generateTerrainData(threads[t]*size, size, gen), size);
+				Scheduler.setParallelism(threads[t]);
+				grids[t] = (threads[t]*size)+"x"+size;
+				timeScheduler(times[t]);
+			}
+			System.out.println("Writing to file...");
+			MyFiles.compileScalingData(times, threads, grids, "weak", label, scheduler, true);
+		}
+	}
+	
+	/**
+	 * <p>Runs the selected scheduler untimed on the current map: at least 20 
+	 * loops and half a second, so small grids get JIT compiled and big grids 
+	 * don't take forever.</p>
+	 */
+	private static void warmUp() {
+		long start = System.nanoTime();
+		for (int i=0; i<20 || System.nanoTime()-start < 500000000L; i++) {
+			scheduler.invoke();
+		}
+	}
+	
+	/**
+	 * <p>Warms up the selected scheduler on the current map (and thread count), 
+	 * then times it once for each element of <code>times</code>.</p>
+	 * 
+	 * @param times Array to store the times in (ms)
+	 */
+	private static void timeScheduler(double[] times) {
+		warmUp();
+		for (int i=0; i<times.length; i++) {
+			System.gc(); // minimize chances of gc running in timing blocks
+			ElevationAnalysis.clearFlags();
+			tick();
+			scheduler.invoke();
+			times[i] = tock();
+		}
+	}
+	
 	/**
 	 * <p>Records the current time (stored in <code>t_tick</code> field).</p>
 	 */
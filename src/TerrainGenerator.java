@@ -0,0 +1,370 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Generates synthetic terrain data for load and scaling tests. The same
+ * seed and settings always give the same grid, so runs on different machines
+ * (or with different thread counts) can be compared.</p>
+ *
+ * <p>Terrain: fractal value noise. Several octaves of smoothly interpolated
+ * random lattice values are added together, each octave with half the
+ * lattice spacing of the one before it and <code>roughness</code> times its
+ * amplitude. Low roughness gives rolling hills, high roughness gives jagged
+ * terrain.</p>
+ *
+ * <p>Basins: on top of the terrain, points are randomly chosen as pits with
+ * probability <code>basinDensity</code>, and lowered by more than the steepest
+ * slope the noise can have. So each pit is a basin (see {@link ElevationAnalysis})
+ * unless it is next to another pit, and the number of basins found is roughly
+ * <code>basinDensity</code> times the number of points, plus the natural
+ * minima of the terrain (more of them for higher roughness).</p>
+ *
+ * <p>Every point is computed on its own from its coordinates and the seed,
+ * using hashing rather than a random number generator. That makes generation
+ * parallel, and means grids that are too big to hold in memory can be written
+ * to file row by row.</p>
+ *
+ * @author agent
+ *
+ */
+public class TerrainGenerator {
+
+	/**
+	 * <p>Lattice spacing, in grid points, of the first (coarsest) octave.</p>
+	 */
+	private static final int BASE_SPACING = 256;
+
+	/**
+	 * <p>Lattice spacing of the finest octave. Finer octaves add lots of 
+	 * small natural minima, which would drown out <code>basinDensity</code> 
+	 * (at spacing 2 and roughness 0.5, about 6000 per million points; at 16, 
+	 * about 100).</p>
+	 */
+	private static final int MIN_SPACING = 16;
+
+	/**
+	 * <p>Elevation range of the first octave, in meters.</p>
+	 */
+	private static final float BASE_HEIGHT = 100f;
+
+	/**
+	 * <p>Number of rows of text written to file at a time. Each block is
+	 * generated in parallel and then written in order.</p>
+	 */
+	private static final int BLOCK_ROWS = 256;
+
+	/**
+	 * <p>Seed for all random values.</p>
+	 */
+	private final long seed;
+
+	/**
+	 * <p>Amplitude factor between one octave and the next (0 to 1).</p>
+	 */
+	private final float roughness;
+
+	/**
+	 * <p>Probability of a point being made into a pit.</p>
+	 */
+	private final double basinDensity;
+
+	/**
+	 * <p>How far a pit is lowered below the terrain. Larger than the biggest
+	 * possible height difference between neighboring points on the terrain,
+	 * plus the basin threshold and rounding in the text files.</p>
+	 */
+	private final float pitDepth;
+
+	/**
+	 * <p>Creates a new <code>TerrainGenerator</code> with default settings:
+	 * seed 1, roughness 0.5 and basin density 0.001.</p>
+	 */
+	TerrainGenerator() {
+		this(1, 0.5f, 0.001);
+	}
+
+	/**
+	 * <p>Creates a new <code>TerrainGenerator</code> with the given settings.</p>
+	 *
+	 * @param seed Seed for all random values
+	 * @param roughness Amplitude factor between octaves, 0 to 1 (eg 0.5)
+	 * @param basinDensity Fraction of points made into basins, 0 to 1 (eg 0.001)
+	 */
+	TerrainGenerator(long seed, float roughness, double basinDensity) {
+		this.seed = seed;
+		this.roughness = roughness;
+		this.basinDensity = basinDensity;
+
+		/*
+		 * Smoothstep has slope at most 1.5, so one octave with spacing s and
+		 * values in [-a,a] changes by at most 1.5*2a/s per step along each axis.
+		 * Diagonal neighbors step along both.
+		 */
+		float slope = 0;
+		float amp = BASE_HEIGHT/2;
+		for (int s=BASE_SPACING; s>=MIN_SPACING; s/=2) {
+			slope += 2*1.5f*2*amp/s;
+			amp *= roughness;
+		}
+		pitDepth = slope + 0.1f;
+	}
+
+	/**
+	 * <p>Gets the seed.</p>
+	 * @return Seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * <p>Gets the roughness.</p>
+	 * @return Roughness
+	 */
+	public float getRoughness() {
+		return roughness;
+	}
+
+	/**
+	 * <p>Gets the basin density.</p>
+	 * @return Basin density
+	 */
+	public double getBasinDensity() {
+		return basinDensity;
+	}
+
+	/**
+	 * <p>Calculates the elevation of the point at the given grid position.</p>
+	 *
+	 * @param row Row of the point
+	 * @param col Column of the point
+	 * @return Elevation in meters
+	 */
+	public float elevation(long row, long col) {
+		float h = BASE_HEIGHT; // keeps elevations above 0
+		float amp = BASE_HEIGHT/2;
+		int octave = 0;
+		for (int s=BASE_SPACING; s>=MIN_SPACING; s/=2) {
+			h += amp*noise(octave, row, col, s);
+			amp *= roughness;
+			octave++;
+		}
+		if (unit(hash(seed, -1, row, col)) < basinDensity) {
+			h -= pitDepth;
+		}
+		return h;
+	}
+
+	/**
+	 * <p>Generates a grid in memory, in the same layout as
+	 * {@link MyFiles#extractTerrainData(String)} returns. Elevations are 
+	 * rounded to the nearest millimeter, the same as <code>write()</code>, so 
+	 * the grid is identical to reading a generated file back in.</p>
+	 *
+	 * @param rows Number of rows
+	 * @param cols Number of columns
+	 * @return <code>PointElevation</code> array with the generated data
+	 */
+	public PointElevation[] generate(int rows, int cols) {
+		PointElevation[] map = new PointElevation[Math.multiplyExact(rows, cols)];
+		IntStream.range(0, rows).parallel().forEach(r -> {
+			for (int c=0; c<cols; c++) {
+				map[r*cols+c] = new PointElevation((float)(millimeters(elevation(r, c))/1000.0));
+			}
+		});
+		return map;
+	}
+
+	/**
+	 * <p>Generates a grid and writes it to a file in the format read by
+	 * {@link MyFiles#extractTerrainData(String)}, with elevations rounded to
+	 * the nearest millimeter.</p>
+	 * <p>The grid is never held in memory as a whole, so the size is only
+	 * limited by disk space.</p>
+	 * <p>Note that if the file already exists, it will be overwritten.</p>
+	 *
+	 * @param rows Number of rows
+	 * @param cols Number of columns
+	 * @param filename Filepath of output file
+	 */
+	public void write(int rows, int cols, String filename) {
+		try {
+			BufferedWriter w = new BufferedWriter(new FileWriter(filename), 1<<20);
+			w.write(rows + " " + cols + "\n");
+
+			String[] block = new String[BLOCK_ROWS];
+			for (int r0=0; r0<rows; r0+=BLOCK_ROWS) {
+				int start = r0;
+				int n = Math.min(BLOCK_ROWS, rows-r0);
+				IntStream.range(0, n).parallel().forEach(i -> block[i] = rowText(start+i, cols));
+				for (int i=0; i<n; i++) {
+					w.write(block[i]);
+				}
+			}
+			w.close();
+		}
+		catch (IOException e) { // very general exception handling
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * <p>Formats one row of the grid as text, space separated with a
+	 * newline at the end.</p>
+	 * <p>Written by hand because <code>String.format()</code> would be
+	 * much slower than the disk.</p>
+	 *
+	 * @param row Row to format
+	 * @param cols Number of columns
+	 * @return Row as text
+	 */
+	private String rowText(int row, int cols) {
+		StringBuilder sb = new StringBuilder(cols*9);
+		for (int c=0; c<cols; c++) {
+			if (c>0) {sb.append(' ');}
+			long mm = millimeters(elevation(row, c));
+			if (mm<0) {sb.append('-'); mm = -mm;}
+			sb.append(mm/1000).append('.');
+			long frac = mm%1000;
+			if (frac<100) {sb.append('0');}
+			if (frac<10) {sb.append('0');}
+			sb.append(frac);
+		}
+		return sb.append('\n').toString();
+	}
+
+	/**
+	 * <p>Rounds an elevation to a whole number of millimeters. Both 
+	 * <code>generate()</code> and <code>write()</code> go through this, 
+	 * so that in-memory and file grids match.</p>
+	 * <p>(<code>mm/1000.0</code> cast to float gives the same float that 
+	 * <code>Scanner</code> parses from the text, since a 3 decimal value is 
+	 * never close enough to halfway between two floats for the double 
+	 * rounding to matter.)</p>
+	 *
+	 * @param h Elevation in meters
+	 * @return Elevation in millimeters
+	 */
+	private static long millimeters(float h) {
+		return Math.round(h*1000.0);
+	}
+
+	/**
+	 * <p>Value noise for one octave: random values in [-1,1] on a lattice
+	 * with the given spacing, interpolated with smoothstep.</p>
+	 *
+	 * @param octave Octave number, so each octave gets different values
+	 * @param row Row of the point
+	 * @param col Column of the point
+	 * @param s Lattice spacing
+	 * @return Noise value in [-1,1]
+	 */
+	private float noise(int octave, long row, long col, int s) {
+		long r0 = row/s;
+		long c0 = col/s;
+		float fr = smooth((float)(row-r0*s)/s);
+		float fc = smooth((float)(col-c0*s)/s);
+
+		float v00 = lattice(octave, r0, c0);
+		float v01 = lattice(octave, r0, c0+1);
+		float v10 = lattice(octave, r0+1, c0);
+		float v11 = lattice(octave, r0+1, c0+1);
+
+		float top = v00 + fc*(v01-v00);
+		float bottom = v10 + fc*(v11-v10);
+		return top + fr*(bottom-top);
+	}
+
+	/**
+	 * <p>Random value in [-1,1] for a lattice point of an octave.</p>
+	 *
+	 * @param octave Octave number
+	 * @param r Lattice row
+	 * @param c Lattice column
+	 * @return Random value
+	 */
+	private float lattice(int octave, long r, long c) {
+		return (float)(2*unit(hash(seed, octave, r, c))-1);
+	}
+
+	/**
+	 * <p>Smoothstep, 3t<sup>2</sup> - 2t<sup>3</sup>.</p>
+	 * @param t Value in [0,1]
+	 * @return Smoothed value in [0,1]
+	 */
+	private static float smooth(float t) {
+		return t*t*(3-2*t);
+	}
+
+	/**
+	 * <p>Converts a hash to a double in [0,1).</p>
+	 * @param h Hash
+	 * @return Value in [0,1)
+	 */
+	private static double unit(long h) {
+		return (h>>>11)*0x1.0p-53;
+	}
+
+	/**
+	 * <p>Mixes the seed, a channel number and grid coordinates into a
+	 * well spread 64-bit hash (using the SplitMix64 finalizer).</p>
+	 *
+	 * @param seed Seed
+	 * @param channel Which random value is wanted (octave number, or -1 for pits)
+	 * @param r Row
+	 * @param c Column
+	 * @return Hash
+	 */
+	private static long hash(long seed, int channel, long r, long c) {
+		long h = seed ^ (channel*0x9E3779B97F4A7C15L);
+		h = mix(h + r*0xC2B2AE3D27D4EB4FL);
+		h = mix(h + c*0x165667B19E3779F9L);
+		return h;
+	}
+
+	/**
+	 * <p>SplitMix64 finalizer.</p>
+	 * @param z Value to mix
+	 * @return Mixed value
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z>>>30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z>>>27)) * 0x94D049BB133111EBL;
+		return z ^ (z>>>31);
+	}
+
+	/**
+	 * <p>Writes a generated grid to file.</p>
+	 * <p>Arguments: &lt;rows&gt; &lt;cols&gt; &lt;outfile&gt;, optionally followed by
+	 * "-seed &lt;long&gt;", "-r &lt;roughness&gt;" and "-d &lt;basin density&gt;"
+	 * (defaults as for <code>TerrainGenerator()</code>).</p>
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int rows = Integer.parseInt(args[0]);
+		int cols = Integer.parseInt(args[1]);
+		String outfile = args[2];
+
+		TerrainGenerator defaults = new TerrainGenerator();
+		long seed = defaults.seed;
+		float roughness = defaults.roughness;
+		double density = defaults.basinDensity;
+		for (int a=3; a<args.length; a++) {
+			if (args[a].equals("-seed")) {
+				seed = Long.parseLong(args[++a]);
+			}
+			else if (args[a].equals("-r")) {
+				roughness = Float.parseFloat(args[++a]);
+			}
+			else if (args[a].equals("-d")) {
+				density = Double.parseDouble(args[++a]);
+			}
+		}
+
+		System.out.println("Generating "+rows+"x"+cols+" terrain...");
+		new TerrainGenerator(seed, roughness, density).write(rows, cols, outfile);
+	}
+}